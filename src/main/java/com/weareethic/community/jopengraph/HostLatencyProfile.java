@@ -0,0 +1,212 @@
+package com.weareethic.community.jopengraph;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalLong;
+
+/**
+ * Keeps a smoothed latency estimate per host, used to derive adaptive connection timeouts.
+ * <p>
+ * Each host tracks an exponentially weighted moving average of its latency together with the average deviation
+ * from it (the same estimator TCP uses for retransmission timeouts). A host's timeout is its average latency plus
+ * four times its deviation, so steady hosts get tight timeouts while slow or jittery hosts keep generous ones.
+ * <p>
+ * JOpenGraph records the time taken to connect and download a page, and uses the derived timeout the same way as its
+ * configured one: as a limit on connecting and on each read, not as a deadline for the whole request. Since a whole
+ * fetch takes at least as long as any single connect or read, the derived timeout errs on the generous side.
+ * <p>
+ * The number of tracked hosts is bounded; the least recently used host is evicted once the limit is reached.
+ * Profiles can be exported and loaded as plain text so they survive restarts. All methods are thread-safe.
+ *
+ * This file is copyrighted under the MIT license.
+ */
+public class HostLatencyProfile {
+
+    private static final int DEFAULT_MAX_HOSTS = 10000;
+
+    private static final int DEFAULT_MIN_TIMEOUT_MS = 1000;  // 1 second
+
+    private static final int MIN_SAMPLES = 3;
+
+    private static final double LATENCY_GAIN = 0.125;
+
+    private static final double DEVIATION_GAIN = 0.25;
+
+    private static final int DEVIATION_MULTIPLIER = 4;
+
+    private static final String FIELD_SEPARATOR = "\t";
+
+    /**
+     * The maximum number of hosts tracked before the least recently used one is evicted
+     */
+    private final int maxHosts;
+
+    /**
+     * The lower bound (in milliseconds) of any adaptive timeout handed out by this profile
+     */
+    private final int minTimeoutMs;
+
+    /**
+     * Latency statistics indexed by lower-cased host name, in access order
+     */
+    private final Map<String, HostStats> hosts;
+
+    /**
+     * Default constructor. Tracks up to 10000 hosts and never hands out a timeout below 1 second.
+     */
+    public HostLatencyProfile() {
+        this(DEFAULT_MAX_HOSTS, DEFAULT_MIN_TIMEOUT_MS);
+    }
+
+    /**
+     * @param maxHosts     the maximum number of hosts to track; the least recently used host is evicted beyond this
+     * @param minTimeoutMs the lower bound (in milliseconds) of any adaptive timeout handed out by this profile
+     */
+    public HostLatencyProfile(int maxHosts, int minTimeoutMs) {
+        if (maxHosts <= 0) {
+            throw new IllegalArgumentException("maxHosts must be positive");
+        }
+        if (minTimeoutMs < 0) {
+            throw new IllegalArgumentException("minTimeoutMs must not be negative");
+        }
+        this.maxHosts = maxHosts;
+        this.minTimeoutMs = minTimeoutMs;
+        this.hosts = new LinkedHashMap<String, HostStats>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, HostStats> eldest) {
+                return size() > HostLatencyProfile.this.maxHosts;
+            }
+        };
+    }
+
+    /**
+     * @param host      the host the request was made to
+     * @param latencyMs the observed latency of the request in milliseconds
+     */
+    public synchronized void recordLatency(String host, long latencyMs) {
+        if (latencyMs < 0) {
+            throw new IllegalArgumentException("latencyMs must not be negative");
+        }
+        hosts.computeIfAbsent(normalize(host), k -> new HostStats()).add(latencyMs);
+    }
+
+    /**
+     * @param host the host whose latency should be estimated
+     * @return Optional object containing the smoothed latency (in milliseconds) of the host, if any was recorded
+     */
+    public synchronized OptionalLong getExpectedLatency(String host) {
+        HostStats stats = hosts.get(normalize(host));
+        return stats == null ? OptionalLong.empty() : OptionalLong.of(Math.round(stats.latencyMs));
+    }
+
+    /**
+     * @param host         the host a request is about to be made to
+     * @param maxTimeoutMs the configured timeout in milliseconds, used as an upper bound and for hosts with too few
+     *                     samples; a value of 0 corresponds to an infinite timeout
+     * @return the adaptive timeout (in milliseconds) to use for the host
+     */
+    public synchronized int getTimeout(String host, int maxTimeoutMs) {
+        HostStats stats = hosts.get(normalize(host));
+        if (stats == null || stats.samples < MIN_SAMPLES) {
+            return maxTimeoutMs;
+        }
+
+        long timeoutMs = Math.max(minTimeoutMs, (long) Math.ceil(stats.latencyMs + DEVIATION_MULTIPLIER * stats.deviationMs));
+        if (maxTimeoutMs > 0) {
+            timeoutMs = Math.min(timeoutMs, maxTimeoutMs);
+        }
+        return (int) Math.min(timeoutMs, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the number of hosts currently tracked by this profile
+     */
+    public synchronized int size() {
+        return hosts.size();
+    }
+
+    /**
+     * Writes the profile as one tab separated line per host (host, latency, deviation, sample count), least recently
+     * used host first.
+     *
+     * @param writer the destination of the exported profile; it is flushed but not closed
+     * @throws IOException occurs if the profile cannot be written
+     */
+    public synchronized void export(Writer writer) throws IOException {
+        for (Map.Entry<String, HostStats> entry : hosts.entrySet()) {
+            HostStats stats = entry.getValue();
+            writer.write(entry.getKey() + FIELD_SEPARATOR + stats.latencyMs + FIELD_SEPARATOR + stats.deviationMs
+                    + FIELD_SEPARATOR + stats.samples + "\n");
+        }
+        writer.flush();
+    }
+
+    /**
+     * Loads a profile previously written by {@link #export(Writer)}, replacing the statistics of any host already
+     * tracked.
+     *
+     * @param reader the source of the exported profile; it is read to its end but not closed
+     * @throws IOException occurs if the profile cannot be read or is malformed
+     */
+    public synchronized void load(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split(FIELD_SEPARATOR);
+            if (fields.length != 4) {
+                throw new IOException("Malformed latency profile line: " + line);
+            }
+            HostStats stats = new HostStats();
+            try {
+                stats.latencyMs = Double.parseDouble(fields[1]);
+                stats.deviationMs = Double.parseDouble(fields[2]);
+                stats.samples = Long.parseLong(fields[3]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed latency profile line: " + line, e);
+            }
+            if (!isValidDuration(stats.latencyMs) || !isValidDuration(stats.deviationMs) || stats.samples <= 0) {
+                throw new IOException("Malformed latency profile line: " + line);
+            }
+            hosts.put(normalize(fields[0]), stats);
+        }
+    }
+
+    private static boolean isValidDuration(double durationMs) {
+        return !Double.isNaN(durationMs) && !Double.isInfinite(durationMs) && durationMs >= 0;
+    }
+
+    private static String normalize(String host) {
+        return host.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Smoothed latency statistics of a single host
+     */
+    private static class HostStats {
+
+        private double latencyMs;
+
+        private double deviationMs;
+
+        private long samples;
+
+        private void add(long sampleMs) {
+            if (samples == 0) {
+                latencyMs = sampleMs;
+                deviationMs = sampleMs / 2.0;
+            } else {
+                deviationMs += DEVIATION_GAIN * (Math.abs(sampleMs - latencyMs) - deviationMs);
+                latencyMs += LATENCY_GAIN * (sampleMs - latencyMs);
+            }
+            samples++;
+        }
+    }
+}
@@ -1,17 +1,37 @@
 package com.weareethic.community.jopengraph;
 
+import com.weareethic.community.jopengraph.NegativeResultCache.FailureType;
+import com.weareethic.community.jopengraph.exception.CachedFailureException;
 import com.weareethic.community.jopengraph.exception.NullDocumentException;
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
+import org.jsoup.UnsupportedMimeTypeException;
 import org.jsoup.nodes.Document;
 import org.jsoup.select.Elements;
 
+import javax.net.ssl.SSLException;
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.MalformedURLException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
 /**
@@ -40,6 +60,10 @@ public class JOpenGraph {
 
     private static final boolean DEFAULT_IGNORE_CONTENT_TYPE_STATUS = true;
 
+    private static final int CHARSET_SNIFF_LIMIT = 1024;  // bytes, as in the HTML5 encoding sniffing algorithm
+
+    private static final Pattern META_CHARSET_PATTERN = Pattern.compile("<meta[^>]+charset\\s*=\\s*[\"']?\\s*([\\w.:-]+)", Pattern.CASE_INSENSITIVE);
+
     private static final String[] PREFIXES = new String[]{"og:", "music:", "video:", "article:", "book:", "profile:", "twitter:"};
 
     /**
@@ -77,6 +101,16 @@ public class JOpenGraph {
      */
     private boolean validateTLSCertificates;
 
+    /**
+     * Optional per-host latency profile used to derive adaptive timeouts (null unless set)
+     */
+    private HostLatencyProfile latencyProfile;
+
+    /**
+     * Optional cache of URLs whose retrieval recently failed or yielded no meta data (null unless set)
+     */
+    private NegativeResultCache negativeResultCache;
+
     /**
      * Default constructor. Sets the following default values:
      * <p>
@@ -139,21 +173,197 @@ public class JOpenGraph {
      *
      * @param URL the URL address of the website from which Open Graph and other meta data is to be obtained
      * @return OpenGraphData object storing the meta information retrieved from the passed URL
-     * @throws IOException           occurs if Jsoup is unable to make a connection to the requested URL due to network errors
+     * @throws IOException           occurs if Jsoup is unable to make a connection to the requested URL due to network errors;
+     *                               a CachedFailureException if a negative result cache is set and the URL recently failed
+     *                               (including with an HTTP error status while http errors are ignored)
      * @throws NullDocumentException occurs if the Document object returned after connection is null
      */
     public OpenGraphData getGraph(String URL) throws IOException, NullDocumentException {
 
-        Document document = Jsoup.connect(URL)
-                .userAgent(userAgent)
-                .referrer(referrer)
-                .timeout(timeoutMs)
-                .ignoreContentType(ignoreContentType)
-                .ignoreHttpErrors(ignoreHttpErrors)
-                .followRedirects(followRedirects)
-                .validateTLSCertificates(validateTLSCertificates)
-                .get();
+        // read once, so that a concurrent setter call cannot swap or clear them halfway through this request
+        NegativeResultCache cache = negativeResultCache;
+        HostLatencyProfile profile = latencyProfile;
+        int configuredTimeoutMs = timeoutMs;
+
+        if (cache != null) {
+            Optional<FailureType> failureType = cache.getFailure(URL);
+            if (failureType.isPresent()) {
+                if (failureType.get() == FailureType.NO_META_DATA) {
+                    return new OpenGraphData(Collections.emptyMap());
+                }
+                throw new CachedFailureException("Recent retrieval of " + URL + " failed: " + failureType.get(), failureType.get());
+            }
+        }
+
+        String host = profile == null ? null : getHost(URL);
+        int requestTimeoutMs = host == null ? configuredTimeoutMs : profile.getTimeout(host, configuredTimeoutMs);
+
+        long startNanos = System.nanoTime();
+        Connection.Response response;
+        try {
+            response = Jsoup.connect(URL)
+                    .userAgent(userAgent)
+                    .referrer(referrer)
+                    .timeout(requestTimeoutMs)
+                    .ignoreContentType(ignoreContentType)
+                    .ignoreHttpErrors(ignoreHttpErrors)
+                    .followRedirects(followRedirects)
+                    .validateTLSCertificates(validateTLSCertificates)
+                    .execute();
+        } catch (IOException e) {
+            // recording how long a timed out request actually took lets the host's timeout grow again
+            if (host != null && e instanceof SocketTimeoutException) {
+                profile.recordLatency(host, (System.nanoTime() - startNanos) / 1000000);
+            }
+            FailureType failureType = getFailureType(e);
+            // a timeout caused by a tightened adaptive timeout says more about the profile than about the URL
+            boolean adaptiveTimeout = failureType == FailureType.TIMEOUT
+                    && (configuredTimeoutMs == 0 ? requestTimeoutMs != 0 : requestTimeoutMs < configuredTimeoutMs);
+            if (cache != null && failureType != null && !adaptiveTimeout) {
+                cache.record(URL, failureType);
+            }
+            throw e;
+        }
+        // only the fetch (connection and download) is timed; parsing is CPU bound and not governed by the timeout
+        if (host != null) {
+            profile.recordLatency(host, (System.nanoTime() - startNanos) / 1000000);
+        }
+
+        OpenGraphData openGraphData = extractGraph(response.parse());
+        if (cache != null) {
+            // with ignoreHttpErrors set, error pages are parsed like any other page but still count as failures
+            int statusCode = response.statusCode();
+            if (statusCode < 200 || statusCode >= 300) {
+                cache.record(URL, getFailureType(statusCode));
+            } else if (openGraphData.getAllProperties().isEmpty()) {
+                cache.record(URL, FailureType.NO_META_DATA);
+            }
+        }
+
+        return openGraphData;
+    }
+
+    /**
+     * @return the class of the failure, or null for failures that may be local to this machine (e.g. running out of
+     * file handles or an interrupted thread) and therefore must not be held against the URL
+     */
+    private static FailureType getFailureType(IOException e) {
+        if (e instanceof HttpStatusException) {
+            return getFailureType(((HttpStatusException) e).getStatusCode());
+        }
+        if (e instanceof SocketTimeoutException) {
+            return FailureType.TIMEOUT;
+        }
+        if (e instanceof UnknownHostException) {
+            return FailureType.UNKNOWN_HOST;
+        }
+        if (e instanceof ConnectException || e instanceof NoRouteToHostException || e instanceof SSLException) {
+            return FailureType.CONNECTION_ERROR;
+        }
+        if (e instanceof UnsupportedMimeTypeException) {
+            return FailureType.UNSUPPORTED_CONTENT_TYPE;
+        }
+        return null;
+    }
+
+    private static FailureType getFailureType(int statusCode) {
+        boolean transientStatus = statusCode >= 500 || statusCode == 408 || statusCode == 429;
+        return transientStatus ? FailureType.SERVER_ERROR : FailureType.CLIENT_ERROR;
+    }
+
+    /**
+     * Returns the latency expected when fetching the passed URL, based on the latency profile of its host.
+     *
+     * @param URL the URL address of the website that is about to be fetched
+     * @return Optional object containing the expected time (in milliseconds) to connect and download the page, excluding
+     * parsing, or empty if no latency profile is set or
+     * nothing has been recorded for the host yet
+     */
+    public OptionalLong getExpectedLatency(String URL) {
+        HostLatencyProfile profile = latencyProfile;
+        String host = profile == null ? null : getHost(URL);
+        return host == null ? OptionalLong.empty() : profile.getExpectedLatency(host);
+    }
 
+    private static String getHost(String URL) {
+        try {
+            String host = new java.net.URL(URL).getHost();
+            return host.isEmpty() ? null : host;
+        } catch (MalformedURLException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses an already opened byte stream (e.g. the body of a response fetched by the caller's own HTTP client) and
+     * retrieves available Open Graph and other metadata.
+     * <p>
+     * This is a convenience for callers that fetch pages themselves; it allocates as much as {@link #getGraph(String)},
+     * since Jsoup still buffers the stream and decodes it into a String before parsing. If no charset is passed, it is
+     * sniffed from a byte order mark or a meta charset / http-equiv tag within the first 1024 bytes, so such pages are
+     * decoded and parsed only once; otherwise detection is left to Jsoup, which also finds a meta charset declared
+     * further down the page. The stream is read to its end but not closed.
+     *
+     * @param inputStream the raw, undecoded bytes of the web page
+     * @param charsetName the charset declared by the Content-Type response header, or null to sniff it from the content
+     * @param baseUri     the URL the page was retrieved from, used to resolve relative links
+     * @return OpenGraphData object storing the meta information retrieved from the passed stream
+     * @throws IOException           occurs if the stream cannot be read
+     * @throws NullDocumentException occurs if the Document object returned after parsing is null
+     */
+    public OpenGraphData getGraph(InputStream inputStream, String charsetName, String baseUri) throws IOException, NullDocumentException {
+
+        if (charsetName == null) {
+            BufferedInputStream bufferedStream = new BufferedInputStream(inputStream, CHARSET_SNIFF_LIMIT);
+            charsetName = sniffCharset(bufferedStream);
+            inputStream = bufferedStream;
+        }
+        Document document = Jsoup.parse(inputStream, charsetName, baseUri);
+
+        return extractGraph(document);
+    }
+
+    /**
+     * Jsoup decodes and parses a page as UTF-8 when no charset is passed, then does both again if a meta tag declares
+     * another charset; looking at a bounded prefix of the bytes first avoids that second pass. A UTF-8 byte order mark
+     * is consumed here, while a UTF-16 one is left for the UTF-16 decoder to consume.
+     *
+     * @return the charset to decode the page with, or null if the prefix holds no byte order mark or meta charset
+     */
+    private static String sniffCharset(BufferedInputStream inputStream) throws IOException {
+        byte[] prefix = new byte[CHARSET_SNIFF_LIMIT];
+        inputStream.mark(CHARSET_SNIFF_LIMIT);
+        int length = 0;
+        int read;
+        while (length < prefix.length && (read = inputStream.read(prefix, length, prefix.length - length)) != -1) {
+            length += read;
+        }
+        inputStream.reset();
+
+        if (length >= 3 && (prefix[0] & 0xFF) == 0xEF && (prefix[1] & 0xFF) == 0xBB && (prefix[2] & 0xFF) == 0xBF) {
+            inputStream.skip(3);
+            return StandardCharsets.UTF_8.name();
+        }
+        if (length >= 2 && (((prefix[0] & 0xFF) == 0xFE && (prefix[1] & 0xFF) == 0xFF) || ((prefix[0] & 0xFF) == 0xFF && (prefix[1] & 0xFF) == 0xFE))) {
+            return StandardCharsets.UTF_16.name();
+        }
+
+        Matcher matcher = META_CHARSET_PATTERN.matcher(new String(prefix, 0, length, StandardCharsets.ISO_8859_1));
+        if (!matcher.find()) {
+            return null;
+        }
+        try {
+            String declaredCharset = matcher.group(1);
+            if (Charset.isSupported(declaredCharset)) {
+                return Charset.forName(declaredCharset).name();
+            }
+        } catch (IllegalCharsetNameException e) {
+            // fall back to the default below, as Jsoup does for unknown charsets
+        }
+        return StandardCharsets.UTF_8.name();
+    }
+
+    private OpenGraphData extractGraph(Document document) throws NullDocumentException {
         if (document == null) {
             throw new NullDocumentException("Jsoup Document was null");
         }
@@ -283,6 +493,20 @@ public class JOpenGraph {
         return validateTLSCertificates;
     }
 
+    /**
+     * @return the per-host latency profile used to derive adaptive timeouts, or null if timeouts are fixed
+     */
+    public HostLatencyProfile getLatencyProfile() {
+        return latencyProfile;
+    }
+
+    /**
+     * @return the cache of recently failed URLs consulted by this JOpenGraph object, or null if failures are not cached
+     */
+    public NegativeResultCache getNegativeResultCache() {
+        return negativeResultCache;
+    }
+
     /**
      * @param userAgent sets the user-agent header to be used by this JOpenGraph object in establishing connections
      */
@@ -331,4 +555,18 @@ public class JOpenGraph {
     public void setValidateTLSCertificates(boolean validateTLSCertificates) {
         this.validateTLSCertificates = validateTLSCertificates;
     }
+
+    /**
+     * @param latencyProfile sets the per-host latency profile this JOpenGraph object records fetch times into and derives adaptive timeouts from; like the configured timeout, which remains the upper bound, an adaptive timeout limits connecting and each read rather than the whole request; null disables adaptive timeouts
+     */
+    public void setLatencyProfile(HostLatencyProfile latencyProfile) {
+        this.latencyProfile = latencyProfile;
+    }
+
+    /**
+     * @param negativeResultCache sets the cache this JOpenGraph object records failed URLs into and consults before establishing a connection; null disables negative caching
+     */
+    public void setNegativeResultCache(NegativeResultCache negativeResultCache) {
+        this.negativeResultCache = negativeResultCache;
+    }
 }
@@ -0,0 +1,219 @@
+package com.weareethic.community.jopengraph;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers URLs whose last retrieval failed or yielded no meta data, so that repeated requests for known-bad links
+ * can fail immediately instead of waiting for another connection attempt.
+ * <p>
+ * Each failure is recorded with its {@link FailureType}, and expires after the time-to-live configured for that
+ * type: permanent looking failures (e.g. a 404 or an unknown host) are remembered longer than transient ones (e.g.
+ * a timeout). The number of entries is bounded; the least recently used entry is evicted once the limit is reached.
+ * All methods are thread-safe.
+ *
+ * This file is copyrighted under the MIT license.
+ */
+public class NegativeResultCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    /**
+     * The classes of failure remembered by the cache, along with their default time-to-live
+     */
+    public enum FailureType {
+
+        /**
+         * The server answered with a 4xx status other than 408 or 429 (e.g. 404 Not Found or 410 Gone)
+         */
+        CLIENT_ERROR(60 * 60 * 1000),  // 1 hour
+
+        /**
+         * The server answered with a 5xx, 408 or 429 status
+         */
+        SERVER_ERROR(60 * 1000),  // 1 minute
+
+        /**
+         * The request timed out
+         */
+        TIMEOUT(60 * 1000),  // 1 minute
+
+        /**
+         * The host name could not be resolved
+         */
+        UNKNOWN_HOST(30 * 60 * 1000),  // 30 minutes
+
+        /**
+         * The page was retrieved but had no Open Graph or other meta data
+         */
+        NO_META_DATA(60 * 60 * 1000),  // 1 hour
+
+        /**
+         * The connection was refused, the host was unreachable or the TLS/SSL handshake failed
+         */
+        CONNECTION_ERROR(60 * 1000),  // 1 minute
+
+        /**
+         * The page has a media content type that is not supported (only when content types are not ignored)
+         */
+        UNSUPPORTED_CONTENT_TYPE(60 * 60 * 1000);  // 1 hour
+
+        private final long defaultTtlMs;
+
+        FailureType(long defaultTtlMs) {
+            this.defaultTtlMs = defaultTtlMs;
+        }
+
+        /**
+         * @return the time-to-live (in milliseconds) used for this failure type unless configured otherwise
+         */
+        public long getDefaultTtl() {
+            return defaultTtlMs;
+        }
+    }
+
+    /**
+     * The maximum number of URLs remembered before the least recently used one is evicted
+     */
+    private final int maxEntries;
+
+    /**
+     * The source of the current time in milliseconds, which must not jump with the wall clock
+     */
+    private final LongSupplier clock;
+
+    /**
+     * The time-to-live (in milliseconds) of each failure type
+     */
+    private final Map<FailureType, Long> ttlMs;
+
+    /**
+     * Recorded failures indexed by URL, in access order
+     */
+    private final Map<String, CachedFailure> entries;
+
+    /**
+     * Default constructor. Remembers up to 10000 URLs using the default time-to-live of each failure type.
+     */
+    public NegativeResultCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param maxEntries the maximum number of URLs to remember; the least recently used URL is evicted beyond this
+     */
+    public NegativeResultCache(int maxEntries) {
+        this(maxEntries, () -> System.nanoTime() / 1000000);
+    }
+
+    NegativeResultCache(int maxEntries, LongSupplier clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        this.ttlMs = new EnumMap<>(FailureType.class);
+        for (FailureType failureType : FailureType.values()) {
+            ttlMs.put(failureType, failureType.getDefaultTtl());
+        }
+        this.entries = new LinkedHashMap<String, CachedFailure>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedFailure> eldest) {
+                return size() > NegativeResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @param URL         the URL whose retrieval failed
+     * @param failureType the class of the failure
+     */
+    public synchronized void record(String URL, FailureType failureType) {
+        long ttl = ttlMs.get(failureType);
+        if (ttl <= 0) {
+            entries.remove(URL);
+            return;
+        }
+        long expiresAtMs;
+        try {
+            expiresAtMs = Math.addExact(clock.getAsLong(), ttl);
+        } catch (ArithmeticException e) {
+            expiresAtMs = Long.MAX_VALUE;
+        }
+        entries.put(URL, new CachedFailure(failureType, expiresAtMs));
+    }
+
+    /**
+     * @param URL the URL that is about to be retrieved
+     * @return Optional object containing the class of the last failure recorded for the URL, if it has not expired yet
+     */
+    public synchronized Optional<FailureType> getFailure(String URL) {
+        CachedFailure cachedFailure = entries.get(URL);
+        if (cachedFailure == null) {
+            return Optional.empty();
+        }
+        if (cachedFailure.expiresAtMs <= clock.getAsLong()) {
+            entries.remove(URL);
+            return Optional.empty();
+        }
+        return Optional.of(cachedFailure.failureType);
+    }
+
+    /**
+     * @param URL the URL whose recorded failure, if any, should be forgotten
+     */
+    public synchronized void invalidate(String URL) {
+        entries.remove(URL);
+    }
+
+    /**
+     * Forgets all recorded failures.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return the number of URLs currently remembered, including any that have expired but were not looked up since
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param failureType the class of failure
+     * @return the time-to-live (in milliseconds) currently configured for the failure type
+     */
+    public synchronized long getTtl(FailureType failureType) {
+        return ttlMs.get(failureType);
+    }
+
+    /**
+     * @param failureType the class of failure
+     * @param ttlMs       sets how long (in milliseconds) failures of this type are remembered; a value of 0 disables caching them
+     */
+    public synchronized void setTtl(FailureType failureType, long ttlMs) {
+        if (ttlMs < 0) {
+            throw new IllegalArgumentException("ttlMs must not be negative");
+        }
+        this.ttlMs.put(failureType, ttlMs);
+    }
+
+    /**
+     * A recorded failure along with its expiry time
+     */
+    private static class CachedFailure {
+
+        private final FailureType failureType;
+
+        private final long expiresAtMs;
+
+        private CachedFailure(FailureType failureType, long expiresAtMs) {
+            this.failureType = failureType;
+            this.expiresAtMs = expiresAtMs;
+        }
+    }
+}
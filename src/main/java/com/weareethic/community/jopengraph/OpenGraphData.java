@@ -1,6 +1,8 @@
 package com.weareethic.community.jopengraph;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -26,10 +28,91 @@ public class OpenGraphData {
     private final Map<String, List<String>> metaData;
 
     /**
-     * @param metaData a map of meta tag names (e.g. og:title, twitter:url, etc.) with their respective content
+     * A 64-bit hash of the meta data, independent of the order in which properties were found
+     */
+    private final long fingerprint;
+
+    /**
+     * @param metaData a map of meta tag names (e.g. og:title, twitter:url, etc.) with their respective content; it is
+     *                 copied, so that neither later changes to it nor to the returned collections can make the fingerprint stale
      */
     OpenGraphData(Map<String, List<String>> metaData) {
-        this.metaData = metaData;
+        Map<String, List<String>> metaDataCopy = new HashMap<>();
+        metaData.forEach((property, content) -> metaDataCopy.put(property, Collections.unmodifiableList(new ArrayList<>(content))));
+        this.metaData = Collections.unmodifiableMap(metaDataCopy);
+        this.fingerprint = computeFingerprint(this.metaData);
+    }
+
+    /**
+     * Each property is hashed (FNV-1a over the length-prefixed name and contents, then mixed) and the property hashes
+     * are summed, so the result does not depend on map iteration order while the order of contents within a property
+     * still counts.
+     */
+    private static long computeFingerprint(Map<String, List<String>> metaData) {
+        long fingerprint = 0;
+        for (Map.Entry<String, List<String>> property : metaData.entrySet()) {
+            long hash = 0xcbf29ce484222325L;
+            hash = hashString(hash, property.getKey());
+            for (String content : property.getValue()) {
+                hash = hashString(hash, content);
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+            fingerprint += hash;
+        }
+        return fingerprint;
+    }
+
+    private static long hashString(long hash, String value) {
+        hash = (hash ^ value.length()) * 0x100000001b3L;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Returns a stable 64-bit fingerprint of all retrieved meta data. Two objects holding the same properties with the
+     * same contents have the same fingerprint, regardless of the order the meta tags appeared in on the page, so a
+     * refreshed result whose fingerprint matches the stored one can be treated as unchanged. Contents are hashed
+     * exactly as retrieved, consistent with {@link #diff(OpenGraphData)}.
+     *
+     * @return the fingerprint of this object's meta data
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Compares this object with a previously retrieved result for the same page.
+     *
+     * @param previous the earlier result; if null every property of this object is reported as added
+     * @return OpenGraphDiff object holding the properties added, removed and changed since the previous result
+     */
+    public OpenGraphDiff diff(OpenGraphData previous) {
+        Map<String, List<String>> previousMetaData = previous == null ? Collections.emptyMap() : previous.metaData;
+        Map<String, List<String>> added = new HashMap<>();
+        Map<String, List<String>> removed = new HashMap<>();
+        Map<String, List<String>> changed = new HashMap<>();
+
+        metaData.forEach((property, content) -> {
+            List<String> previousContent = previousMetaData.get(property);
+            if (previousContent == null) {
+                added.put(property, content);
+            } else if (!previousContent.equals(content)) {
+                changed.put(property, content);
+            }
+        });
+        previousMetaData.forEach((property, previousContent) -> {
+            if (!metaData.containsKey(property)) {
+                removed.put(property, previousContent);
+            }
+        });
+
+        return new OpenGraphDiff(added, removed, changed);
     }
 
     /**
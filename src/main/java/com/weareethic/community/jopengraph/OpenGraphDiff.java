@@ -0,0 +1,64 @@
+package com.weareethic.community.jopengraph;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The difference between two OpenGraphData objects retrieved for the same page, e.g. before and after a refresh.
+ * Properties are compared by name, and a property counts as changed when its list of contents differs in any way
+ * (including order).
+ *
+ * This file is copyrighted under the MIT license.
+ */
+public class OpenGraphDiff {
+
+    /**
+     * Properties only present in the newer result, with their contents
+     */
+    private final Map<String, List<String>> added;
+
+    /**
+     * Properties only present in the previous result, with their previous contents
+     */
+    private final Map<String, List<String>> removed;
+
+    /**
+     * Properties present in both results but with different contents, with their new contents
+     */
+    private final Map<String, List<String>> changed;
+
+    OpenGraphDiff(Map<String, List<String>> added, Map<String, List<String>> removed, Map<String, List<String>> changed) {
+        this.added = Collections.unmodifiableMap(added);
+        this.removed = Collections.unmodifiableMap(removed);
+        this.changed = Collections.unmodifiableMap(changed);
+    }
+
+    /**
+     * @return the properties found only in the newer result, mapped to their contents
+     */
+    public Map<String, List<String>> getAdded() {
+        return added;
+    }
+
+    /**
+     * @return the properties found only in the previous result, mapped to their previous contents
+     */
+    public Map<String, List<String>> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return the properties whose contents differ between both results, mapped to their new contents
+     */
+    public Map<String, List<String>> getChanged() {
+        return changed;
+    }
+
+    /**
+     * @return true if both results hold the same properties with the same contents, false otherwise
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+}
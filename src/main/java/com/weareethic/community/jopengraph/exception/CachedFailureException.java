@@ -0,0 +1,19 @@
+package com.weareethic.community.jopengraph.exception;
+
+import com.weareethic.community.jopengraph.NegativeResultCache.FailureType;
+
+import java.io.IOException;
+
+public class CachedFailureException extends IOException {
+
+    private final FailureType failureType;
+
+    public CachedFailureException(String message, FailureType failureType) {
+        super(message);
+        this.failureType = failureType;
+    }
+
+    public FailureType getFailureType() {
+        return failureType;
+    }
+}
@@ -0,0 +1,102 @@
+package com.weareethic.community.jopengraph;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.OptionalLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is copyrighted under the MIT license.
+ */
+public class HostLatencyProfileTest {
+
+    private HostLatencyProfile latencyProfile;
+
+    @Before
+    public void createHostLatencyProfile() {
+        this.latencyProfile = new HostLatencyProfile(2, 100);
+    }
+
+    @Test
+    public void testExpectedLatency() {
+        assertEquals(OptionalLong.empty(), latencyProfile.getExpectedLatency("www.example.com"));
+
+        latencyProfile.recordLatency("www.example.com", 200);
+        assertEquals(OptionalLong.of(200), latencyProfile.getExpectedLatency("WWW.EXAMPLE.COM"));
+
+        latencyProfile.recordLatency("www.example.com", 1000);
+        assertEquals(OptionalLong.of(300), latencyProfile.getExpectedLatency("www.example.com"));
+    }
+
+    @Test
+    public void testAdaptiveTimeout() {
+        latencyProfile.recordLatency("fast.example.com", 200);
+        latencyProfile.recordLatency("fast.example.com", 200);
+        assertEquals(30000, latencyProfile.getTimeout("fast.example.com", 30000));
+
+        latencyProfile.recordLatency("fast.example.com", 200);
+        int timeoutMs = latencyProfile.getTimeout("fast.example.com", 30000);
+        assertTrue(timeoutMs >= 200 && timeoutMs < 1000);
+        assertEquals(timeoutMs, latencyProfile.getTimeout("fast.example.com", 0));
+        assertEquals(300, latencyProfile.getTimeout("fast.example.com", 300));
+
+        for (int i = 0; i < 50; i++) {
+            latencyProfile.recordLatency("fast.example.com", 1);
+        }
+        assertEquals(100, latencyProfile.getTimeout("fast.example.com", 30000));
+    }
+
+    @Test
+    public void testEviction() {
+        latencyProfile.recordLatency("a.example.com", 100);
+        latencyProfile.recordLatency("b.example.com", 100);
+        latencyProfile.getExpectedLatency("a.example.com");
+        latencyProfile.recordLatency("c.example.com", 100);
+
+        assertEquals(2, latencyProfile.size());
+        assertTrue(latencyProfile.getExpectedLatency("a.example.com").isPresent());
+        assertFalse(latencyProfile.getExpectedLatency("b.example.com").isPresent());
+        assertTrue(latencyProfile.getExpectedLatency("c.example.com").isPresent());
+    }
+
+    @Test
+    public void testExportAndLoad() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            latencyProfile.recordLatency("www.example.com", 100 + i * 50);
+        }
+        StringWriter exported = new StringWriter();
+        latencyProfile.export(exported);
+
+        HostLatencyProfile loadedProfile = new HostLatencyProfile(2, 100);
+        loadedProfile.load(new StringReader(exported.toString()));
+        assertEquals(latencyProfile.getExpectedLatency("www.example.com"), loadedProfile.getExpectedLatency("www.example.com"));
+        assertEquals(latencyProfile.getTimeout("www.example.com", 30000), loadedProfile.getTimeout("www.example.com", 30000));
+    }
+
+    @Test
+    public void testLoadMalformedProfile() {
+        String[] malformedLines = new String[]{
+                "www.example.com\tnot-a-number\t1.0\t3",
+                "www.example.com\tNaN\t1.0\t3",
+                "www.example.com\t100.0\tInfinity\t3",
+                "www.example.com\t-100.0\t1.0\t3",
+                "www.example.com\t100.0\t-1.0\t3",
+                "www.example.com\t100.0\t1.0\t0",
+                "www.example.com\t100.0\t1.0"
+        };
+        for (String malformedLine : malformedLines) {
+            try {
+                latencyProfile.load(new StringReader(malformedLine + "\n"));
+                fail("Expected an IOException for " + malformedLine);
+            } catch (IOException e) {
+                assertTrue(e.getMessage().startsWith("Malformed latency profile line"));
+            }
+        }
+        assertEquals(0, latencyProfile.size());
+    }
+}
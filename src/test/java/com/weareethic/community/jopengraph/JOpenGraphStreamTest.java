@@ -0,0 +1,77 @@
+package com.weareethic.community.jopengraph;
+
+import com.weareethic.community.jopengraph.exception.NullDocumentException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is copyrighted under the MIT license.
+ */
+public class JOpenGraphStreamTest {
+
+    private static final String BASE_URI = "https://www.example.com/";
+
+    private static final String TITLE = "Caf\u00e9 cr\u00e8me";
+
+    private JOpenGraph jOpenGraph;
+
+    @Before
+    public void createJOpenGraph() {
+        this.jOpenGraph = new JOpenGraph();
+    }
+
+    @Test
+    public void testSniffMetaCharset() throws IOException, NullDocumentException {
+        byte[] page = getPage("ISO-8859-1").getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals(TITLE, jOpenGraph.getGraph(new ByteArrayInputStream(page), null, BASE_URI).getTitle().orElse(""));
+    }
+
+    @Test
+    public void testSniffByteOrderMark() throws IOException, NullDocumentException {
+        byte[] utf16Page = getPage("UTF-16").getBytes(StandardCharsets.UTF_16);
+        assertEquals(TITLE, jOpenGraph.getGraph(new ByteArrayInputStream(utf16Page), null, BASE_URI).getTitle().orElse(""));
+
+        ByteArrayOutputStream utf8Page = new ByteArrayOutputStream();
+        utf8Page.write(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+        utf8Page.write(getPage("windows-1252").getBytes(StandardCharsets.UTF_8));
+        OpenGraphData openGraphData = jOpenGraph.getGraph(new ByteArrayInputStream(utf8Page.toByteArray()), null, BASE_URI);
+        assertEquals(TITLE, openGraphData.getTitle().orElse(""));
+    }
+
+    @Test
+    public void testLateMetaCharset() throws IOException, NullDocumentException {
+        StringBuilder script = new StringBuilder("<script>");
+        while (script.length() < 2000) {
+            script.append("var padding = 'xxxxxxxxxxxxxxxx';");
+        }
+        script.append("</script>");
+        String page = "<html><head>" + script + getPage("ISO-8859-1").substring("<html><head>".length());
+
+        byte[] pageBytes = page.getBytes(StandardCharsets.ISO_8859_1);
+        assertEquals(TITLE, jOpenGraph.getGraph(new ByteArrayInputStream(pageBytes), null, BASE_URI).getTitle().orElse(""));
+    }
+
+    @Test
+    public void testDeclaredCharset() throws IOException, NullDocumentException {
+        byte[] page = getPage("ISO-8859-1").getBytes(Charset.forName("UTF-16LE"));
+        assertEquals(TITLE, jOpenGraph.getGraph(new ByteArrayInputStream(page), "UTF-16LE", BASE_URI).getTitle().orElse(""));
+    }
+
+    @Test
+    public void testUnknownMetaCharset() throws IOException, NullDocumentException {
+        byte[] page = getPage("x-no-such-charset").getBytes(StandardCharsets.UTF_8);
+        assertEquals(TITLE, jOpenGraph.getGraph(new ByteArrayInputStream(page), null, BASE_URI).getTitle().orElse(""));
+    }
+
+    private static String getPage(String metaCharset) {
+        return "<html><head><meta charset=\"" + metaCharset + "\"><meta property=\"og:title\" content=\"" + TITLE + "\"></head></html>";
+    }
+}
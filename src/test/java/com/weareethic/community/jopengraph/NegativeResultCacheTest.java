@@ -0,0 +1,177 @@
+package com.weareethic.community.jopengraph;
+
+import com.weareethic.community.jopengraph.NegativeResultCache.FailureType;
+import com.weareethic.community.jopengraph.exception.CachedFailureException;
+import com.weareethic.community.jopengraph.exception.NullDocumentException;
+import com.weareethic.community.jopengraph.loadtest.StubHttpServer;
+import org.jsoup.Jsoup;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.EnumSet;
+import java.util.Optional;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is copyrighted under the MIT license.
+ */
+public class NegativeResultCacheTest {
+
+    private static final String DEAD_URL = "https://www.example.com/dead-link";
+
+    private long nowMs;
+
+    private NegativeResultCache negativeResultCache;
+
+    @Before
+    public void createNegativeResultCache() {
+        this.nowMs = 0;
+        this.negativeResultCache = new NegativeResultCache(2, () -> nowMs);
+    }
+
+    @Test
+    public void testFailureExpiresPerType() {
+        negativeResultCache.record(DEAD_URL, FailureType.TIMEOUT);
+        assertEquals(Optional.of(FailureType.TIMEOUT), negativeResultCache.getFailure(DEAD_URL));
+
+        nowMs = FailureType.TIMEOUT.getDefaultTtl();
+        assertEquals(Optional.empty(), negativeResultCache.getFailure(DEAD_URL));
+        assertEquals(0, negativeResultCache.size());
+
+        negativeResultCache.record(DEAD_URL, FailureType.CLIENT_ERROR);
+        nowMs += FailureType.TIMEOUT.getDefaultTtl();
+        assertEquals(Optional.of(FailureType.CLIENT_ERROR), negativeResultCache.getFailure(DEAD_URL));
+    }
+
+    @Test
+    public void testConfiguredTtl() {
+        negativeResultCache.setTtl(FailureType.SERVER_ERROR, 10);
+        assertEquals(10, negativeResultCache.getTtl(FailureType.SERVER_ERROR));
+        negativeResultCache.record(DEAD_URL, FailureType.SERVER_ERROR);
+        nowMs = 10;
+        assertFalse(negativeResultCache.getFailure(DEAD_URL).isPresent());
+
+        negativeResultCache.setTtl(FailureType.SERVER_ERROR, 0);
+        negativeResultCache.record(DEAD_URL, FailureType.SERVER_ERROR);
+        assertFalse(negativeResultCache.getFailure(DEAD_URL).isPresent());
+    }
+
+    @Test
+    public void testLargeTtlDoesNotOverflow() {
+        nowMs = 1000;
+        negativeResultCache.setTtl(FailureType.CLIENT_ERROR, Long.MAX_VALUE);
+        negativeResultCache.record(DEAD_URL, FailureType.CLIENT_ERROR);
+        nowMs = Long.MAX_VALUE - 1;
+        assertEquals(Optional.of(FailureType.CLIENT_ERROR), negativeResultCache.getFailure(DEAD_URL));
+    }
+
+    @Test
+    public void testEvictionAndInvalidation() {
+        negativeResultCache.record("https://a.example.com", FailureType.UNKNOWN_HOST);
+        negativeResultCache.record("https://b.example.com", FailureType.UNKNOWN_HOST);
+        negativeResultCache.getFailure("https://a.example.com");
+        negativeResultCache.record("https://c.example.com", FailureType.UNKNOWN_HOST);
+
+        assertEquals(2, negativeResultCache.size());
+        assertTrue(negativeResultCache.getFailure("https://a.example.com").isPresent());
+        assertFalse(negativeResultCache.getFailure("https://b.example.com").isPresent());
+
+        negativeResultCache.invalidate("https://a.example.com");
+        assertFalse(negativeResultCache.getFailure("https://a.example.com").isPresent());
+    }
+
+    @Test
+    public void testGetGraphConsultsCache() throws IOException, NullDocumentException {
+        JOpenGraph jOpenGraph = new JOpenGraph();
+        jOpenGraph.setNegativeResultCache(negativeResultCache);
+
+        negativeResultCache.record(DEAD_URL, FailureType.NO_META_DATA);
+        assertTrue(jOpenGraph.getGraph(DEAD_URL).getAllProperties().isEmpty());
+
+        negativeResultCache.record(DEAD_URL, FailureType.CLIENT_ERROR);
+        try {
+            jOpenGraph.getGraph(DEAD_URL);
+            fail("Expected a CachedFailureException");
+        } catch (CachedFailureException e) {
+            assertEquals(FailureType.CLIENT_ERROR, e.getFailureType());
+        }
+    }
+
+    @Test
+    public void testConnectionFailureIsCached() throws IOException, NullDocumentException {
+        int closedPort;
+        try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            closedPort = serverSocket.getLocalPort();
+        }
+        String URL = "http://127.0.0.1:" + closedPort + "/";
+
+        JOpenGraph jOpenGraph = new JOpenGraph();
+        jOpenGraph.setNegativeResultCache(negativeResultCache);
+        try {
+            jOpenGraph.getGraph(URL);
+            fail("Expected a ConnectException");
+        } catch (ConnectException e) {
+            assertEquals(Optional.of(FailureType.CONNECTION_ERROR), negativeResultCache.getFailure(URL));
+        }
+    }
+
+    @Test
+    public void testOnlyFullTimeoutsAreCached() throws IOException, NullDocumentException {
+        try (StubHttpServer server = new StubHttpServer(2000, 0, 0, 0, 42, 2)) {
+            server.start();
+            String URL = server.getUrl("article.html", 0);
+
+            JOpenGraph jOpenGraph = new JOpenGraph();
+            jOpenGraph.setTimeout(5000);
+            jOpenGraph.setNegativeResultCache(negativeResultCache);
+            HostLatencyProfile latencyProfile = new HostLatencyProfile(10, 100);
+            for (int i = 0; i < 3; i++) {
+                latencyProfile.recordLatency(new URL(URL).getHost(), 10);
+            }
+            jOpenGraph.setLatencyProfile(latencyProfile);
+            try {
+                jOpenGraph.getGraph(URL);
+                fail("Expected a SocketTimeoutException");
+            } catch (SocketTimeoutException e) {
+                assertFalse(negativeResultCache.getFailure(URL).isPresent());
+            }
+
+            jOpenGraph.setLatencyProfile(null);
+            jOpenGraph.setTimeout(100);
+            try {
+                jOpenGraph.getGraph(URL);
+                fail("Expected a SocketTimeoutException");
+            } catch (SocketTimeoutException e) {
+                assertEquals(Optional.of(FailureType.TIMEOUT), negativeResultCache.getFailure(URL));
+            }
+        }
+    }
+
+    @Test
+    public void testIgnoredHttpErrorsAreCachedByStatus() throws IOException, NullDocumentException {
+        try (StubHttpServer server = new StubHttpServer(0, 0, 1, 0, 42, 2)) {
+            server.start();
+            JOpenGraph jOpenGraph = new JOpenGraph(true, true, true, true);
+            jOpenGraph.setNegativeResultCache(new NegativeResultCache());
+
+            EnumSet<FailureType> failureTypes = EnumSet.noneOf(FailureType.class);
+            for (int variant = 0; variant < 10; variant++) {
+                String URL = server.getUrl("article.html", variant);
+                int statusCode = Jsoup.connect(URL).ignoreHttpErrors(true).execute().statusCode();
+                FailureType expected = statusCode == 500 ? FailureType.SERVER_ERROR : FailureType.CLIENT_ERROR;
+
+                assertTrue(jOpenGraph.getGraph(URL).getAllProperties().isEmpty());
+                assertEquals(Optional.of(expected), jOpenGraph.getNegativeResultCache().getFailure(URL));
+                failureTypes.add(expected);
+            }
+            assertEquals(EnumSet.of(FailureType.CLIENT_ERROR, FailureType.SERVER_ERROR), failureTypes);
+        }
+    }
+}
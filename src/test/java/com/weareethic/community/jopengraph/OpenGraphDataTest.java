@@ -0,0 +1,90 @@
+package com.weareethic.community.jopengraph;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is copyrighted under the MIT license.
+ */
+public class OpenGraphDataTest {
+
+    @Test
+    public void testFingerprint() {
+        Map<String, List<String>> mockMetaContents = new HashMap<>();
+        mockMetaContents.put("og:title", Collections.singletonList("test_title"));
+        mockMetaContents.put("og:image", Arrays.asList("https:://first.jpg", "https:://second.jpg"));
+
+        Map<String, List<String>> reorderedMetaContents = new LinkedHashMap<>();
+        reorderedMetaContents.put("og:image", new ArrayList<>(Arrays.asList("https:://first.jpg", "https:://second.jpg")));
+        reorderedMetaContents.put("og:title", Collections.singletonList("test_title"));
+        assertEquals(new OpenGraphData(mockMetaContents).getFingerprint(), new OpenGraphData(reorderedMetaContents).getFingerprint());
+
+        reorderedMetaContents.put("og:image", Arrays.asList("https:://second.jpg", "https:://first.jpg"));
+        assertNotEquals(new OpenGraphData(mockMetaContents).getFingerprint(), new OpenGraphData(reorderedMetaContents).getFingerprint());
+
+        reorderedMetaContents.remove("og:image");
+        reorderedMetaContents.put("og:title", Collections.singletonList("test_title_updated"));
+        assertNotEquals(new OpenGraphData(mockMetaContents).getFingerprint(), new OpenGraphData(reorderedMetaContents).getFingerprint());
+    }
+
+    @Test
+    public void testFingerprintCannotGoStale() {
+        Map<String, List<String>> mockMetaContents = new HashMap<>();
+        mockMetaContents.put("og:title", new LinkedList<>(Collections.singletonList("test_title")));
+        OpenGraphData openGraphData = new OpenGraphData(mockMetaContents);
+        long fingerprint = openGraphData.getFingerprint();
+
+        mockMetaContents.get("og:title").add("test_title_updated");
+        mockMetaContents.put("og:type", Collections.singletonList("article"));
+        assertEquals(Collections.singletonList("test_title"), openGraphData.getContent("og:title"));
+        assertEquals(Collections.singleton("og:title"), openGraphData.getAllProperties());
+        assertEquals(fingerprint, openGraphData.getFingerprint());
+
+        try {
+            openGraphData.getContent("og:title").add("test_title_updated");
+            fail("Expected an UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            openGraphData.getAllProperties().remove("og:title");
+            fail("Expected an UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDiff() {
+        Map<String, List<String>> previousMetaContents = new HashMap<>();
+        previousMetaContents.put("og:title", Collections.singletonList("test_title"));
+        previousMetaContents.put("og:type", Collections.singletonList("article"));
+        previousMetaContents.put("og:image", Collections.singletonList("https:://og_image_url.jpg"));
+        OpenGraphData previousOpenGraphData = new OpenGraphData(previousMetaContents);
+
+        assertTrue(new OpenGraphData(new HashMap<>(previousMetaContents)).diff(previousOpenGraphData).isEmpty());
+
+        Map<String, List<String>> currentMetaContents = new HashMap<>(previousMetaContents);
+        currentMetaContents.remove("og:type");
+        currentMetaContents.put("og:image", Collections.singletonList("https:://og_image_secure_url.png"));
+        currentMetaContents.put("og:description", Collections.singletonList("test_description"));
+        OpenGraphDiff diff = new OpenGraphData(currentMetaContents).diff(previousOpenGraphData);
+
+        assertFalse(diff.isEmpty());
+        assertEquals(Collections.singletonMap("og:description", Collections.singletonList("test_description")), diff.getAdded());
+        assertEquals(Collections.singletonMap("og:type", Collections.singletonList("article")), diff.getRemoved());
+        assertEquals(Collections.singletonMap("og:image", Collections.singletonList("https:://og_image_secure_url.png")), diff.getChanged());
+
+        assertEquals(previousMetaContents, previousOpenGraphData.diff(null).getAdded());
+    }
+}
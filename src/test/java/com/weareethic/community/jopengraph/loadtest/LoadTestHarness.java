@@ -0,0 +1,177 @@
+package com.weareethic.community.jopengraph.loadtest;
+
+import com.weareethic.community.jopengraph.HostLatencyProfile;
+import com.weareethic.community.jopengraph.JOpenGraph;
+import com.weareethic.community.jopengraph.NegativeResultCache;
+import com.weareethic.community.jopengraph.OpenGraphData;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives JOpenGraph against a {@link StubHttpServer} at a fixed request rate and reports throughput, latency
+ * percentiles, allocation and thread counts. Runs without network access, e.g. through the loadTest Gradle task.
+ * <p>
+ * Requests are issued open-loop: each request has a scheduled start time and its latency is measured from that time,
+ * so a slow library shows up as higher latency rather than as a silently lower request rate.
+ * <p>
+ * Settings are read from system properties (defaults in brackets):
+ * loadtest.rate (50 requests per second), loadtest.durationSeconds (10), loadtest.warmupSeconds (2),
+ * loadtest.concurrency (16 client threads), loadtest.timeoutMs (5000), loadtest.latencyMs (20),
+ * loadtest.bandwidth (0 bytes per second, unlimited), loadtest.errorRate (0.05), loadtest.paddingBytes (0),
+ * loadtest.variants (10 distinct URLs per page), loadtest.seed (42), loadtest.serverThreads (32),
+ * loadtest.latencyProfile (false) and loadtest.negativeCache (false).
+ * <p>
+ * Requests cycle through every page and variant, so each URL is requested again after pages * variants requests. The
+ * negative cache only has an effect when URLs repeat within a run; raising loadtest.variants makes more URLs unique.
+ *
+ * This file is copyrighted under the MIT license.
+ */
+public class LoadTestHarness {
+
+    private final int rate;
+
+    private final int concurrency;
+
+    private final int variants;
+
+    private final JOpenGraph jOpenGraph;
+
+    private final StubHttpServer server;
+
+    private final List<String> pageNames;
+
+    public LoadTestHarness(JOpenGraph jOpenGraph, StubHttpServer server, int rate, int concurrency, int variants) {
+        this.jOpenGraph = jOpenGraph;
+        this.server = server;
+        this.rate = rate;
+        this.concurrency = concurrency;
+        this.variants = variants;
+        this.pageNames = server.getPageNames();
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rate = Integer.getInteger("loadtest.rate", 50);
+        int durationSeconds = Integer.getInteger("loadtest.durationSeconds", 10);
+        int warmupSeconds = Integer.getInteger("loadtest.warmupSeconds", 2);
+        int concurrency = Integer.getInteger("loadtest.concurrency", 16);
+        int timeoutMs = Integer.getInteger("loadtest.timeoutMs", 5000);
+        int latencyMs = Integer.getInteger("loadtest.latencyMs", 20);
+        long bandwidth = Long.getLong("loadtest.bandwidth", 0);
+        double errorRate = Double.parseDouble(System.getProperty("loadtest.errorRate", "0.05"));
+        int paddingBytes = Integer.getInteger("loadtest.paddingBytes", 0);
+        int variants = Integer.getInteger("loadtest.variants", 10);
+        long seed = Long.getLong("loadtest.seed", 42);
+        int serverThreads = Integer.getInteger("loadtest.serverThreads", 32);
+
+        JOpenGraph jOpenGraph = new JOpenGraph();
+        jOpenGraph.setTimeout(timeoutMs);
+        if (Boolean.getBoolean("loadtest.latencyProfile")) {
+            jOpenGraph.setLatencyProfile(new HostLatencyProfile());
+        }
+        if (Boolean.getBoolean("loadtest.negativeCache")) {
+            jOpenGraph.setNegativeResultCache(new NegativeResultCache());
+        }
+
+        try (StubHttpServer server = new StubHttpServer(latencyMs, bandwidth, errorRate, paddingBytes, seed, serverThreads)) {
+            server.start();
+            System.out.println(String.format(Locale.ROOT,
+                    "Load test: %d req/s for %ds (+%ds warmup), %d client threads, server latency %dms, bandwidth %s, error rate %.2f, padding %d bytes, %d pages",
+                    rate, durationSeconds, warmupSeconds, concurrency, latencyMs, bandwidth > 0 ? bandwidth + " B/s" : "unlimited",
+                    errorRate, paddingBytes, server.getPageNames().size()));
+
+            LoadTestHarness harness = new LoadTestHarness(jOpenGraph, server, rate, concurrency, variants);
+            if (warmupSeconds > 0) {
+                harness.run(warmupSeconds);
+            }
+            harness.run(durationSeconds).print(System.out);
+        }
+    }
+
+    /**
+     * Issues rate * durationSeconds requests, spaced evenly, and waits for all of them to complete.
+     *
+     * @param durationSeconds the length of the run in seconds
+     * @return the measurements taken during the run
+     * @throws InterruptedException occurs if the run is interrupted
+     */
+    public LoadTestResult run(int durationSeconds) throws InterruptedException {
+        int requests = rate * durationSeconds;
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long[] latencyNanos = new long[requests];
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong empty = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        CountDownLatch completed = new CountDownLatch(requests);
+
+        Queue<Thread> clientThreads = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, runnable -> {
+            Thread thread = new Thread(runnable, "loadtest-client-" + clientThreads.size());
+            thread.setDaemon(true);
+            clientThreads.add(thread);
+            return thread;
+        });
+
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        threadMXBean.resetPeakThreadCount();
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            long scheduledNanos = startNanos + i * intervalNanos;
+            LockSupport.parkNanos(scheduledNanos - System.nanoTime());
+
+            int request = i;
+            String URL = server.getUrl(pageNames.get(i % pageNames.size()), (i / pageNames.size()) % variants);
+            executor.execute(() -> {
+                try {
+                    OpenGraphData openGraphData = jOpenGraph.getGraph(URL);
+                    (openGraphData.getAllProperties().isEmpty() ? empty : succeeded).incrementAndGet();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                } finally {
+                    latencyNanos[request] = System.nanoTime() - scheduledNanos;
+                    completed.countDown();
+                }
+            });
+        }
+        completed.await();
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        long allocatedBytes = getAllocatedBytes(threadMXBean, clientThreads);
+        int peakThreads = threadMXBean.getPeakThreadCount();
+        executor.shutdown();
+
+        Arrays.sort(latencyNanos);
+        return new LoadTestResult(requests, succeeded.get(), empty.get(), failed.get(), elapsedNanos, latencyNanos,
+                allocatedBytes, clientThreads.size(), peakThreads);
+    }
+
+    /**
+     * @return the bytes allocated by the client threads, or -1 if the JVM does not support measuring it
+     */
+    private static long getAllocatedBytes(ThreadMXBean threadMXBean, Queue<Thread> threads) {
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        if (!allocationMXBean.isThreadAllocatedMemorySupported() || !allocationMXBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long allocatedBytes = 0;
+        for (Thread thread : threads) {
+            allocatedBytes += Math.max(0, allocationMXBean.getThreadAllocatedBytes(thread.getId()));
+        }
+        return allocatedBytes;
+    }
+}
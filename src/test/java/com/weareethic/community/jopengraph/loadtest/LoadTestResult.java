@@ -0,0 +1,88 @@
+package com.weareethic.community.jopengraph.loadtest;
+
+import java.io.PrintStream;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The measurements taken during a single {@link LoadTestHarness} run.
+ *
+ * This file is copyrighted under the MIT license.
+ */
+public class LoadTestResult {
+
+    private final int requests;
+
+    private final long succeeded;
+
+    private final long empty;
+
+    private final long failed;
+
+    private final long elapsedNanos;
+
+    /**
+     * The latency of every request in nanoseconds, sorted in ascending order
+     */
+    private final long[] latencyNanos;
+
+    private final long allocatedBytes;
+
+    private final int clientThreads;
+
+    private final int peakThreads;
+
+    LoadTestResult(int requests, long succeeded, long empty, long failed, long elapsedNanos, long[] latencyNanos,
+                   long allocatedBytes, int clientThreads, int peakThreads) {
+        this.requests = requests;
+        this.succeeded = succeeded;
+        this.empty = empty;
+        this.failed = failed;
+        this.elapsedNanos = elapsedNanos;
+        this.latencyNanos = latencyNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.clientThreads = clientThreads;
+        this.peakThreads = peakThreads;
+    }
+
+    /**
+     * @return the number of completed requests per second
+     */
+    public double getThroughput() {
+        return requests / (elapsedNanos / (double) TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * @param percentile the percentile to compute, between 0 and 100
+     * @return the latency (in milliseconds) below which the given percentage of requests completed
+     */
+    public double getLatencyPercentile(double percentile) {
+        if (latencyNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * latencyNanos.length) - 1;
+        return latencyNanos[Math.max(0, Math.min(index, latencyNanos.length - 1))] / 1e6;
+    }
+
+    /**
+     * @return the bytes allocated by the client threads, or -1 if the JVM does not support measuring it
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public void print(PrintStream out) {
+        out.println(String.format(Locale.ROOT, "Requests:     %d (%d with data, %d empty, %d failed)", requests, succeeded, empty, failed));
+        out.println(String.format(Locale.ROOT, "Throughput:   %.1f req/s", getThroughput()));
+        out.println(String.format(Locale.ROOT, "Latency (ms): p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f",
+                getLatencyPercentile(50), getLatencyPercentile(90), getLatencyPercentile(99), getLatencyPercentile(99.9),
+                getLatencyPercentile(100)));
+        if (allocatedBytes >= 0) {
+            out.println(String.format(Locale.ROOT, "Allocated:    %.1f MB by client threads, %.1f KB per request",
+                    allocatedBytes / (1024.0 * 1024.0), requests == 0 ? 0 : allocatedBytes / 1024.0 / requests));
+        } else {
+            out.println("Allocated:    not supported by this JVM");
+        }
+        out.println(String.format(Locale.ROOT, "Threads:      %d client threads, %d peak live threads in the JVM", clientThreads, peakThreads));
+    }
+}
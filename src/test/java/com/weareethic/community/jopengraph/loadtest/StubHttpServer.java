@@ -0,0 +1,245 @@
+package com.weareethic.community.jopengraph.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A local HTTP server serving a recorded corpus of web pages, used to exercise JOpenGraph without network access.
+ * <p>
+ * Pages are served under /corpus/{name} (any query string is ignored, so distinct URLs can map to the same page).
+ * Every response can be delayed by a fixed latency, throttled to a given bandwidth and padded to a larger size, and a
+ * configurable share of URLs fails with a 404 or 500 status. Which URLs fail is derived from the URL and a seed, so
+ * runs with the same settings are repeatable.
+ *
+ * This file is copyrighted under the MIT license.
+ */
+public class StubHttpServer implements AutoCloseable {
+
+    private static final String CORPUS_PATH = "/loadtest/corpus/";
+
+    private static final String CORPUS_INDEX = CORPUS_PATH + "index.txt";
+
+    private static final String CONTEXT_PATH = "/corpus/";
+
+    private static final int CHUNK_SIZE = 1024;
+
+    /**
+     * The recorded pages indexed by name, in corpus index order
+     */
+    private final Map<String, byte[]> corpus;
+
+    private final int latencyMs;
+
+    private final long bandwidthBytesPerSecond;
+
+    private final double errorRate;
+
+    private final int paddingBytes;
+
+    private final long seed;
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    /**
+     * @param latencyMs               the delay (in milliseconds) before each response is sent
+     * @param bandwidthBytesPerSecond the rate at which response bodies are written; a value of 0 means unlimited
+     * @param errorRate               the share of URLs (between 0 and 1) that fail with a 404 or 500 status
+     * @param paddingBytes            the number of bytes of padding appended to every page, to simulate larger responses
+     * @param seed                    the seed deciding which URLs fail
+     * @param threads                 the number of threads serving requests
+     * @throws IOException occurs if the corpus cannot be read or the server cannot be bound
+     */
+    public StubHttpServer(int latencyMs, long bandwidthBytesPerSecond, double errorRate, int paddingBytes, long seed, int threads) throws IOException {
+        this.corpus = loadCorpus();
+        this.latencyMs = latencyMs;
+        this.bandwidthBytesPerSecond = bandwidthBytesPerSecond;
+        this.errorRate = errorRate;
+        this.paddingBytes = paddingBytes;
+        this.seed = seed;
+        this.executor = Executors.newFixedThreadPool(threads);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext(CONTEXT_PATH, this::handle);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the names of the recorded pages, in corpus index order
+     */
+    public List<String> getPageNames() {
+        return new ArrayList<>(corpus.keySet());
+    }
+
+    /**
+     * @param pageName the name of a recorded page
+     * @param variant  a number distinguishing otherwise identical URLs
+     * @return the URL at which the page is served
+     */
+    public String getUrl(String pageName, int variant) {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + CONTEXT_PATH + pageName + "?v=" + variant;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            sleep(latencyMs);
+
+            String pageName = exchange.getRequestURI().getPath().substring(CONTEXT_PATH.length());
+            byte[] page = corpus.get(pageName);
+            int status;
+            byte[] body;
+            if (page == null) {
+                status = 404;
+                body = "Not Found".getBytes(StandardCharsets.US_ASCII);
+            } else {
+                double roll = roll(exchange.getRequestURI().toString());
+                if (roll < errorRate) {
+                    status = roll < errorRate / 2 ? 404 : 500;
+                    body = (status == 404 ? "Not Found" : "Internal Server Error").getBytes(StandardCharsets.US_ASCII);
+                } else {
+                    status = 200;
+                    body = pad(page);
+                }
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "text/html");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                writeThrottled(out, body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return a number between 0 and 1 that only depends on the request URI and the seed
+     */
+    private double roll(String requestUri) {
+        long hash = seed ^ 0xcbf29ce484222325L;
+        for (int i = 0; i < requestUri.length(); i++) {
+            hash ^= requestUri.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return (hash >>> 11) / (double) (1L << 53);
+    }
+
+    private byte[] pad(byte[] page) {
+        if (paddingBytes <= 0) {
+            return page;
+        }
+        byte[] padded = Arrays.copyOf(page, page.length + paddingBytes);
+        byte[] open = "<!--".getBytes(StandardCharsets.US_ASCII);
+        byte[] close = "-->".getBytes(StandardCharsets.US_ASCII);
+        Arrays.fill(padded, page.length, padded.length, (byte) 'x');
+        if (paddingBytes >= open.length + close.length) {
+            System.arraycopy(open, 0, padded, page.length, open.length);
+            System.arraycopy(close, 0, padded, padded.length - close.length, close.length);
+        }
+        return padded;
+    }
+
+    private void writeThrottled(OutputStream out, byte[] body) throws IOException {
+        if (bandwidthBytesPerSecond <= 0) {
+            out.write(body);
+            return;
+        }
+        long startNanos = System.nanoTime();
+        for (int offset = 0; offset < body.length; offset += CHUNK_SIZE) {
+            int length = Math.min(CHUNK_SIZE, body.length - offset);
+            out.write(body, offset, length);
+            out.flush();
+            long dueNanos = startNanos + (offset + length) * 1000000000L / bandwidthBytesPerSecond;
+            sleep((dueNanos - System.nanoTime()) / 1000000);
+        }
+    }
+
+    private static void sleep(long millis) throws IOException {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while delaying response", e);
+        }
+    }
+
+    private static Map<String, byte[]> loadCorpus() throws IOException {
+        Map<String, byte[]> corpus = new LinkedHashMap<>();
+        try (InputStream index = openResource(CORPUS_INDEX);
+             BufferedReader names = new BufferedReader(new InputStreamReader(index, StandardCharsets.UTF_8))) {
+            String name;
+            while ((name = names.readLine()) != null) {
+                name = name.trim();
+                if (name.isEmpty()) {
+                    continue;
+                }
+                try (InputStream page = openResource(CORPUS_PATH + name)) {
+                    corpus.put(name, readFully(page));
+                }
+            }
+        }
+        if (corpus.isEmpty()) {
+            throw new IOException("Load test corpus is empty");
+        }
+        return corpus;
+    }
+
+    private static InputStream openResource(String path) throws IOException {
+        InputStream resource = StubHttpServer.class.getResourceAsStream(path);
+        if (resource == null) {
+            throw new IOException("Missing load test resource " + path);
+        }
+        return resource;
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,43 @@
+package com.weareethic.community.jopengraph.loadtest;
+
+import com.weareethic.community.jopengraph.JOpenGraph;
+import com.weareethic.community.jopengraph.OpenGraphData;
+import com.weareethic.community.jopengraph.exception.NullDocumentException;
+import org.jsoup.HttpStatusException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * This file is copyrighted under the MIT license.
+ */
+public class StubHttpServerTest {
+
+    private StubHttpServer server;
+
+    @Before
+    public void startServer() throws IOException {
+        this.server = new StubHttpServer(0, 0, 0, 0, 42, 2);
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.close();
+    }
+
+    @Test
+    public void testGetGraphFromCorpus() throws IOException, NullDocumentException {
+        OpenGraphData openGraphData = new JOpenGraph().getGraph(server.getUrl("article.html", 0));
+        assertEquals("Central Banks Weigh Rate Cuts as Growth Slows", openGraphData.getTitle().orElse(""));
+    }
+
+    @Test(expected = HttpStatusException.class)
+    public void testMissingPage() throws IOException, NullDocumentException {
+        new JOpenGraph().getGraph(server.getUrl("missing.html", 0));
+    }
+}